@@ -9,6 +9,7 @@ import android.graphics.YuvImage;
 import android.os.Bundle;
 import android.util.Log;
 import android.widget.Toast;
+import java.util.ArrayList;
 import java.util.Arrays;
 
 import androidx.annotation.OptIn;
@@ -16,13 +17,13 @@ import androidx.camera.core.ExperimentalGetImage;
 
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.camera.core.CameraSelector;
-import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
 import androidx.core.content.ContextCompat;
 
+import com.google.android.gms.tasks.Tasks;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.mlkit.vision.common.InputImage;
 import com.google.mlkit.vision.face.Face;
@@ -42,11 +43,35 @@ import java.util.concurrent.Executors;
 
 public class CameraActivity extends AppCompatActivity {
 
+    // Stream shown in the preview/overlay; further sources share the same inference pool
+    private static final String PRIMARY_STREAM_ID = "front";
+    private static final int STREAM_QUEUE_DEPTH = 2;
+    private static final long STREAM_MAX_LATENCY_MS = 500;
+    private static final int INFERENCE_WORKERS = 2;
+    private static final int MAX_BATCH_SIZE = 4;
+    private static final long BATCH_WINDOW_MS = 20;
+    private static final long STATS_LOG_INTERVAL_MS = 5000;
+    private static final long SHUTDOWN_TIMEOUT_MS = 2000;
+    private static final long MOTION_MAX_SKIP_MS = 1000;
+
     private FaceOverlayView faceOverlayView;
     private PreviewView previewView;
     private ExecutorService cameraExecutor;
+    private InferenceScheduler<ImageProxy> inferenceScheduler;
+    private final List<CameraXFrameSource> frameSources = new ArrayList<>();
+    // Logs scheduler and gate stats on the UI thread, even while the gate lets nothing through
+    private final Runnable statsLogger = new Runnable() {
+        @Override
+        public void run() {
+            logStreamStats();
+            previewView.postDelayed(this, STATS_LOG_INTERVAL_MS);
+        }
+    };
+    // Enqueue time of the newest frame drawn on the overlay; only touched on the UI thread
+    private long lastOverlayFrameNanos = Long.MIN_VALUE;
     private FaceDetector faceDetector;
     private TfLiteFaceEmbedder faceEmbedder;
+    // Toast throttle state; only touched on the UI thread
     private String lastFeedback = "";
     private long lastToastTime = 0;
 
@@ -57,7 +82,7 @@ public class CameraActivity extends AppCompatActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         try {
-            faceEmbedder = new TfLiteFaceEmbedder(this, "facenet.tflite");
+            faceEmbedder = new TfLiteFaceEmbedder(this, "facenet.tflite", MAX_BATCH_SIZE);
         } catch (IOException e) {
             e.printStackTrace();
             Toast.makeText(this, "Failed to load face recognition model", Toast.LENGTH_LONG).show();
@@ -73,12 +98,47 @@ public class CameraActivity extends AppCompatActivity {
         FaceDetectorOptions options =
                 new FaceDetectorOptions.Builder()
                         .setPerformanceMode(FaceDetectorOptions.PERFORMANCE_MODE_FAST)
-                        .enableTracking()  // optional, for tracking faces across frames
                         .build();
 
         faceDetector = FaceDetection.getClient(options);
 
+        // Shared detection/embedding pool; frames that are processed or dropped get closed by the scheduler
+        InferenceScheduler.BatchProcessor<ImageProxy> processor = new InferenceScheduler.BatchProcessor<ImageProxy>() {
+            @Override
+            public void process(List<InferenceScheduler.ScheduledFrame<ImageProxy>> batch) {
+                processBatch(batch);
+            }
+
+            @Override
+            public void onFailure(List<InferenceScheduler.ScheduledFrame<ImageProxy>> batch, RuntimeException error) {
+                Log.e("InferenceScheduler", "Batch of " + batch.size() + " frames failed", error);
+            }
+        };
+        inferenceScheduler = new InferenceScheduler.Builder<>(processor)
+                .setFrameReleaser(ImageProxy::close)
+                .setWorkerCount(INFERENCE_WORKERS)
+                .setMaxBatchSize(MAX_BATCH_SIZE)
+                .setBatchWindowMillis(BATCH_WINDOW_MS)
+                .build();
+
+        CameraSelector frontSelector = new CameraSelector.Builder()
+                .requireLensFacing(CameraSelector.LENS_FACING_FRONT)
+                .build();
+        // Leave headroom over the scheduler queue so CameraX never blocks before the scheduler drops
+        frameSources.add(new CameraXFrameSource(PRIMARY_STREAM_ID, frontSelector,
+                STREAM_QUEUE_DEPTH + MAX_BATCH_SIZE * INFERENCE_WORKERS, cameraExecutor));
+
+        for (CameraXFrameSource source : frameSources) {
+            // Skip detection while the doorway is empty or the student holds still
+            source.setMotionGate(new MotionGate.Builder()
+                    .setMaxSkipMillis(MOTION_MAX_SKIP_MS)
+                    .build());
+            inferenceScheduler.registerStream(source.getId(), STREAM_QUEUE_DEPTH, STREAM_MAX_LATENCY_MS);
+        }
+        inferenceScheduler.start();
+
         startCamera();
+        previewView.postDelayed(statsLogger, STATS_LOG_INTERVAL_MS);
     }
 
     @ExperimentalGetImage
@@ -94,20 +154,25 @@ public class CameraActivity extends AppCompatActivity {
                 Preview preview = new Preview.Builder().build();
                 preview.setSurfaceProvider(previewView.getSurfaceProvider());
 
-                // ImageAnalysis use case for ML Kit
-                ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
-                        .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
-                        .build();
-
-                imageAnalysis.setAnalyzer(cameraExecutor, this::analyzeImage);
-
-                // Front camera selector
-                CameraSelector cameraSelector = new CameraSelector.Builder()
-                        .requireLensFacing(CameraSelector.LENS_FACING_FRONT)
-                        .build();
-
                 cameraProvider.unbindAll();
-                cameraProvider.bindToLifecycle(this, cameraSelector, preview, imageAnalysis);
+
+                // The primary source shares the preview; extra sources need concurrent camera support
+                for (CameraXFrameSource source : frameSources) {
+                    source.start(inferenceScheduler);
+                    try {
+                        if (PRIMARY_STREAM_ID.equals(source.getId())) {
+                            cameraProvider.bindToLifecycle(this, source.getCameraSelector(),
+                                    preview, source.getImageAnalysis());
+                        } else {
+                            cameraProvider.bindToLifecycle(this, source.getCameraSelector(),
+                                    source.getImageAnalysis());
+                        }
+                    } catch (IllegalArgumentException | IllegalStateException e) {
+                        Log.e("CameraActivity", "Failed to bind camera stream " + source.getId(), e);
+                        source.stop();
+                        inferenceScheduler.unregisterStream(source.getId());
+                    }
+                }
 
             } catch (ExecutionException | InterruptedException e) {
                 e.printStackTrace();
@@ -115,92 +180,164 @@ public class CameraActivity extends AppCompatActivity {
         }, ContextCompat.getMainExecutor(this));
     }
 
+    // Runs on a scheduler worker: detect faces per frame, then embed every qualifying face in one call
+    private void processBatch(List<InferenceScheduler.ScheduledFrame<ImageProxy>> batch) {
+        List<Bitmap> capturedFaces = new ArrayList<>();
+        List<String> capturedStreams = new ArrayList<>();
+
+        for (InferenceScheduler.ScheduledFrame<ImageProxy> frame : batch) {
+            int before = capturedFaces.size();
+            analyzeImage(frame, capturedFaces);
+            for (int i = before; i < capturedFaces.size(); i++) {
+                capturedStreams.add(frame.getStreamId());
+            }
+        }
+
+        if (!capturedFaces.isEmpty()) {
+            float[][] embeddings = faceEmbedder.getFaceEmbeddings(capturedFaces);
+            for (int i = 0; i < embeddings.length; i++) {
+                Log.d("FaceEmbedding", capturedStreams.get(i) + " " + Arrays.toString(embeddings[i]));
+            }
+            showFeedback("✅ Perfect! Face captured.");
+        }
+    }
+
+    // Detects faces in one frame and adds the crops that pass all checks to capturedFaces.
+    // The frame itself is closed by the scheduler once the batch is done.
     @OptIn(markerClass = ExperimentalGetImage.class)
-    private void analyzeImage(ImageProxy imageProxy) {
+    private void analyzeImage(InferenceScheduler.ScheduledFrame<ImageProxy> frame, List<Bitmap> capturedFaces) {
+        ImageProxy imageProxy = frame.getFrame();
         if (imageProxy == null || imageProxy.getImage() == null) {
-            if (imageProxy != null) imageProxy.close();
             return;
         }
 
         int rotationDegrees = imageProxy.getImageInfo().getRotationDegrees();
         int imageWidth = imageProxy.getWidth();
         int imageHeight = imageProxy.getHeight();
-
-        // Let the overlay view know the image source details so it can transform coordinates correctly
-        faceOverlayView.setImageSourceInfo(imageWidth, imageHeight, rotationDegrees);
+        // Only the primary stream is drawn on the overlay
+        boolean primary = PRIMARY_STREAM_ID.equals(frame.getStreamId());
 
         InputImage inputImage = InputImage.fromMediaImage(
                 imageProxy.getImage(),
                 rotationDegrees
         );
 
-        faceDetector.process(inputImage)
-                .addOnSuccessListener(faces -> {
-                    faceOverlayView.setFaces(faces);
-
-                    if (!faces.isEmpty()) {
-                        // Convert ImageProxy to Bitmap once
-                        Bitmap frameBitmap = imageProxyToBitmap(imageProxy);
-
-                        for (Face face : faces) {
-                            // Crop the face Bitmap using bounding box
-                            Bitmap faceBitmap = cropToBBox(frameBitmap, face.getBoundingBox());
-
-                            if (faceBitmap != null) {
-                                boolean centered = isFaceCentered(face, imageWidth, imageHeight);
-                                boolean sizeOk = isFaceSizeOk(face, 150, 400);
-                                boolean facingForward = isFacingForward(face);
-                                boolean blurryOk = !isBlurry(faceBitmap, 1000);
-                                boolean lightingOk = isLightingOk(faceBitmap);
-
-                                // Default box color
-                                int boxColor = Color.GREEN;
-
-                                if (!centered) {
-                                    boxColor = Color.RED;
-                                    showFeedback("⬅️➡️ Move horizontally or ⬆️⬇️ vertically to center your face");
-                                }
-
-                                if (!sizeOk) {
-                                    boxColor = Color.RED;
-                                    showFeedback("↔️ Adjust distance: move closer or back");
-                                }
-
-                                if (!facingForward) {
-                                    boxColor = Color.RED;
-                                    showFeedback("↪️ Turn your face toward the camera");
-                                }
-
-                                if (!blurryOk) {
-                                    boxColor = Color.RED;
-                                    showFeedback("💧 Image is blurry, hold still or adjust lighting");
-                                }
-
-                                if (!lightingOk) {
-                                    boxColor = Color.RED;
-                                    showFeedback("💡 Adjust lighting: too dark or too bright");
-                                }
-
-                                // Set the box color based on the checks
-                                faceOverlayView.setBoxColor(boxColor);
-
-                                // If all checks passed, capture the embedding
-                                if (centered && sizeOk && facingForward && blurryOk && lightingOk) {
-                                    float[] embedding = faceEmbedder.getFaceEmbedding(faceBitmap);
-                                    Log.d("FaceEmbedding", Arrays.toString(embedding));
-                                    showFeedback("✅ Perfect! Face captured.");
-                                }
-                            }
+        List<Face> faces;
+        try {
+            faces = Tasks.await(faceDetector.process(inputImage));
+        } catch (ExecutionException e) {
+            Log.e("FaceDetection", "Detection failed", e);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
 
-                        }
+        // Only frames that really went through detection become the gate's new reference
+        MotionGate motionGate = motionGateFor(frame.getStreamId());
+        if (motionGate != null) motionGate.markProcessed(imageProxy.getImageInfo().getTimestamp());
+
+        // Box color for the overlay; stays null when no face could be checked
+        Integer overlayBoxColor = null;
+
+        if (!faces.isEmpty()) {
+            // Convert ImageProxy to Bitmap once
+            Bitmap frameBitmap = imageProxyToBitmap(imageProxy);
 
-                        showFeedback("Faces detected: " + faces.size());
-                    } else {
-                        faceOverlayView.clearFaces();
+            for (Face face : faces) {
+                // Crop the face Bitmap using bounding box
+                Bitmap faceBitmap = cropToBBox(frameBitmap, face.getBoundingBox());
+
+                if (faceBitmap != null) {
+                    boolean centered = isFaceCentered(face, imageWidth, imageHeight);
+                    boolean sizeOk = isFaceSizeOk(face, 150, 400);
+                    boolean facingForward = isFacingForward(face);
+                    boolean blurryOk = !isBlurry(faceBitmap, 1000);
+                    boolean lightingOk = isLightingOk(faceBitmap);
+
+                    // Default box color
+                    int boxColor = Color.GREEN;
+
+                    if (!centered) {
+                        boxColor = Color.RED;
+                        showFeedback("⬅️➡️ Move horizontally or ⬆️⬇️ vertically to center your face");
                     }
-                })
-                .addOnFailureListener(e -> Log.e("FaceDetection", "Detection failed", e))
-                .addOnCompleteListener(task -> imageProxy.close());
+
+                    if (!sizeOk) {
+                        boxColor = Color.RED;
+                        showFeedback("↔️ Adjust distance: move closer or back");
+                    }
+
+                    if (!facingForward) {
+                        boxColor = Color.RED;
+                        showFeedback("↪️ Turn your face toward the camera");
+                    }
+
+                    if (!blurryOk) {
+                        boxColor = Color.RED;
+                        showFeedback("💧 Image is blurry, hold still or adjust lighting");
+                    }
+
+                    if (!lightingOk) {
+                        boxColor = Color.RED;
+                        showFeedback("💡 Adjust lighting: too dark or too bright");
+                    }
+
+                    // Set the box color based on the checks
+                    overlayBoxColor = boxColor;
+
+                    // If all checks passed, queue the face for the batched embedding
+                    if (centered && sizeOk && facingForward && blurryOk && lightingOk) {
+                        capturedFaces.add(faceBitmap);
+                    }
+                }
+
+            }
+
+            showFeedback("Faces detected: " + faces.size());
+        }
+
+        if (primary) {
+            postOverlayUpdate(frame.getEnqueuedNanos(), imageWidth, imageHeight, rotationDegrees,
+                    faces, overlayBoxColor);
+        }
+    }
+
+    // Views may only be touched on the UI thread; workers can also finish frames out of order,
+    // so results older than the last drawn frame are dropped
+    private void postOverlayUpdate(long frameNanos, int imageWidth, int imageHeight, int rotationDegrees,
+                                   List<Face> faces, Integer boxColor) {
+        faceOverlayView.post(() -> {
+            if (frameNanos < lastOverlayFrameNanos) return;
+            lastOverlayFrameNanos = frameNanos;
+
+            // Let the overlay view know the image source details so it can transform coordinates correctly
+            faceOverlayView.setImageSourceInfo(imageWidth, imageHeight, rotationDegrees);
+            if (faces.isEmpty()) {
+                faceOverlayView.clearFaces();
+            } else {
+                faceOverlayView.setFaces(faces);
+            }
+            if (boxColor != null) faceOverlayView.setBoxColor(boxColor);
+        });
+    }
+
+    private MotionGate motionGateFor(String streamId) {
+        for (CameraXFrameSource source : frameSources) {
+            if (source.getId().equals(streamId)) return source.getMotionGate();
+        }
+        return null;
+    }
+
+    private void logStreamStats() {
+        for (StreamStats stats : inferenceScheduler.getAllStats()) {
+            Log.d("InferenceScheduler", stats.toString());
+        }
+        for (CameraXFrameSource source : frameSources) {
+            if (source.getMotionGate() != null) {
+                Log.d("MotionGate", source.getId() + ": " + source.getMotionGate());
+            }
+        }
     }
 
     // Convert ImageProxy to Bitmap
@@ -247,8 +384,25 @@ public class CameraActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        previewView.removeCallbacks(statsLogger);
+        for (CameraXFrameSource source : frameSources) {
+            source.stop();
+        }
+        boolean idle = false;
+        try {
+            idle = inferenceScheduler.shutdown(SHUTDOWN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         cameraExecutor.shutdown();
-        faceDetector.close();
+
+        // Detector and embedder are shared by the workers; closing them mid-batch would crash
+        if (idle) {
+            faceDetector.close();
+            if (faceEmbedder != null) faceEmbedder.close();
+        } else {
+            Log.w("CameraActivity", "Inference still running, leaving detector and embedder open");
+        }
     }
 
     private boolean isFaceCentered(Face face, int frameWidth, int frameHeight) {
@@ -338,13 +492,16 @@ public class CameraActivity extends AppCompatActivity {
         return variance < threshold; // use threshold ~1–5 for front camera
     }
 
+    // Called from inference workers; the throttle runs on the UI thread so workers cannot race on it
     private void showFeedback(String message) {
-        long now = System.currentTimeMillis();
-        if (!message.equals(lastFeedback) || now - lastToastTime > 1000) { // 1 sec throttle
-            lastFeedback = message;
-            lastToastTime = now;
-            runOnUiThread(() -> Toast.makeText(this, message, Toast.LENGTH_SHORT).show());
-        }
+        runOnUiThread(() -> {
+            long now = System.currentTimeMillis();
+            if (!message.equals(lastFeedback) || now - lastToastTime > 1000) { // 1 sec throttle
+                lastFeedback = message;
+                lastToastTime = now;
+                Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
 }
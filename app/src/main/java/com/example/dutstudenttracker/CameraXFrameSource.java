@@ -0,0 +1,77 @@
+package com.example.dutstudenttracker;
+
+import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+
+import java.util.concurrent.Executor;
+
+// One CameraX lens feeding the shared scheduler. Bind getImageAnalysis() to a lifecycle alongside the preview.
+public class CameraXFrameSource implements FrameSource<ImageProxy> {
+
+    private final String id;
+    private final CameraSelector cameraSelector;
+    private final ImageAnalysis imageAnalysis;
+    private final Executor analyzerExecutor;
+    private volatile MotionGate motionGate;
+
+    public CameraXFrameSource(String id, CameraSelector cameraSelector, int imageQueueDepth,
+                              Executor analyzerExecutor) {
+        this.id = id;
+        this.cameraSelector = cameraSelector;
+        this.analyzerExecutor = analyzerExecutor;
+        // Block the producer so CameraX keeps delivering while earlier frames wait in the scheduler;
+        // the scheduler's own queue cap decides which frames are dropped
+        this.imageAnalysis = new ImageAnalysis.Builder()
+                .setBackpressureStrategy(ImageAnalysis.STRATEGY_BLOCK_PRODUCER)
+                .setImageQueueDepth(imageQueueDepth)
+                .build();
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    public CameraSelector getCameraSelector() {
+        return cameraSelector;
+    }
+
+    public ImageAnalysis getImageAnalysis() {
+        return imageAnalysis;
+    }
+
+    // Optional admission stage: frames the gate rejects are closed before reaching the scheduler
+    public void setMotionGate(MotionGate motionGate) {
+        this.motionGate = motionGate;
+    }
+
+    public MotionGate getMotionGate() {
+        return motionGate;
+    }
+
+    @Override
+    public void start(InferenceScheduler<ImageProxy> scheduler) {
+        imageAnalysis.setAnalyzer(analyzerExecutor, imageProxy -> {
+            if (!isAdmitted(imageProxy)) {
+                scheduler.recordSkipped(id);
+                imageProxy.close();
+                return;
+            }
+            scheduler.submit(id, imageProxy);
+        });
+    }
+
+    @Override
+    public void stop() {
+        imageAnalysis.clearAnalyzer();
+    }
+
+    private boolean isAdmitted(ImageProxy imageProxy) {
+        MotionGate gate = motionGate;
+        if (gate == null) return true;
+        ImageProxy.PlaneProxy yPlane = imageProxy.getPlanes()[0];
+        return gate.admit(yPlane.getBuffer(), imageProxy.getWidth(), imageProxy.getHeight(),
+                yPlane.getRowStride(), yPlane.getPixelStride(), imageProxy.getImageInfo().getTimestamp());
+    }
+}
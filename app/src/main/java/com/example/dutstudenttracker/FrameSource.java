@@ -0,0 +1,14 @@
+package com.example.dutstudenttracker;
+
+// A camera (CameraX lens, USB camera, file replay...) that pushes frames into the shared scheduler
+public interface FrameSource<T> {
+
+    // Stream id used for scheduling and stats; must be unique per scheduler
+    String getId();
+
+    // Begin delivering frames to the scheduler via scheduler.submit(getId(), frame)
+    void start(InferenceScheduler<T> scheduler);
+
+    // Stop delivering frames; frames already queued are still processed or released by the scheduler
+    void stop();
+}
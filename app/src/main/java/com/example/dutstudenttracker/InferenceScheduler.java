@@ -0,0 +1,431 @@
+package com.example.dutstudenttracker;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Shares one detection/embedding worker pool between several frame streams.
+ *
+ * Each stream has its own bounded queue; when it overflows the oldest frame is dropped, and
+ * frames that waited longer than the stream's latency cap are dropped instead of processed.
+ * Batches are filled round-robin (one frame per stream per pass, starting stream rotating
+ * every batch) so one busy entrance cannot starve the others.
+ *
+ * With a batch window set, an idle worker does not grab the first frame on its own: it waits
+ * until the batch is full, every registered stream has a frame queued, or the oldest queued
+ * frame has waited batchWindowMillis. A single stream is never delayed. Keep the window well
+ * below the streams' latency caps, since lingering counts against them.
+ *
+ * Pure Java so it can be driven by synthetic streams on the JVM.
+ */
+public class InferenceScheduler<T> {
+
+    // Processes one batch of frames, possibly from several streams
+    public interface BatchProcessor<T> {
+        void process(List<ScheduledFrame<T>> batch);
+
+        // Called on the worker thread when process() throws; the batch is counted as failed
+        default void onFailure(List<ScheduledFrame<T>> batch, RuntimeException error) {
+            error.printStackTrace();
+        }
+    }
+
+    // Frees a frame once it was processed or dropped (e.g. ImageProxy::close)
+    public interface FrameReleaser<T> {
+        void release(T frame);
+    }
+
+    private static final long FPS_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final BatchProcessor<T> processor;
+    private final FrameReleaser<T> releaser;
+    private final int workerCount;
+    private final int maxBatchSize;
+    private final long batchWindowNanos;
+    private final LongSupplier nanoClock;
+
+    private final Map<String, Stream<T>> streams = new LinkedHashMap<>();
+    private final List<Stream<T>> order = new ArrayList<>();
+    private int cursor = 0;
+    private boolean running = false;
+    private boolean shutDown = false;
+    private int inFlight = 0;
+    private ExecutorService workers;
+
+    private InferenceScheduler(Builder<T> builder) {
+        this.processor = builder.processor;
+        this.releaser = builder.releaser;
+        this.workerCount = builder.workerCount;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.batchWindowNanos = TimeUnit.MILLISECONDS.toNanos(builder.batchWindowMillis);
+        this.nanoClock = builder.nanoClock;
+    }
+
+    public synchronized void registerStream(String streamId, int maxQueueDepth, long maxLatencyMs) {
+        if (maxQueueDepth < 1) throw new IllegalArgumentException("maxQueueDepth must be >= 1");
+        if (maxLatencyMs <= 0) throw new IllegalArgumentException("maxLatencyMs must be > 0");
+        if (streams.containsKey(streamId)) {
+            throw new IllegalArgumentException("Stream already registered: " + streamId);
+        }
+        Stream<T> stream = new Stream<>(streamId, maxQueueDepth, TimeUnit.MILLISECONDS.toNanos(maxLatencyMs));
+        streams.put(streamId, stream);
+        order.add(stream);
+    }
+
+    // Removes a stream and releases everything still queued for it
+    public void unregisterStream(String streamId) {
+        List<T> toRelease = new ArrayList<>();
+        synchronized (this) {
+            Stream<T> stream = streams.remove(streamId);
+            if (stream == null) return;
+            int index = order.indexOf(stream);
+            order.remove(index);
+            if (index < cursor) cursor--;
+            if (cursor >= order.size()) cursor = 0;
+            for (ScheduledFrame<T> frame : stream.queue) toRelease.add(frame.getFrame());
+            stream.queue.clear();
+        }
+        releaseAll(toRelease);
+    }
+
+    // Called by frame sources from their own threads; never blocks on inference
+    public void submit(String streamId, T frame) {
+        T dropped = null;
+        boolean accepted = true;
+        synchronized (this) {
+            Stream<T> stream = streams.get(streamId);
+            if (stream == null || shutDown) {
+                // Late callbacks after shutdown still get their frame released
+                accepted = false;
+            } else {
+                long now = nanoClock.getAsLong();
+                stream.submitted++;
+                stream.recordArrival(now);
+                if (stream.queue.size() >= stream.maxQueueDepth) {
+                    dropped = stream.queue.pollFirst().getFrame();
+                    stream.dropped++;
+                }
+                stream.queue.addLast(new ScheduledFrame<>(streamId, frame, now));
+                notifyAll();
+            }
+        }
+        if (!accepted) release(frame);
+        if (dropped != null) release(dropped);
+    }
+
+    // Counts a frame the source rejected before queueing (e.g. by a MotionGate) so fps stays the camera rate
+    public synchronized void recordSkipped(String streamId) {
+        Stream<T> stream = streams.get(streamId);
+        if (stream == null) return;
+        stream.skipped++;
+        stream.recordArrival(nanoClock.getAsLong());
+    }
+
+    public synchronized void start() {
+        if (running || shutDown) return;
+        running = true;
+        workers = Executors.newFixedThreadPool(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(this::workerLoop);
+        }
+    }
+
+    /**
+     * Stops the workers, releases every frame still queued and waits up to timeoutMs for
+     * in-flight batches, so shared detectors can be closed safely afterwards.
+     * Returns false if a batch was still running when the timeout expired.
+     */
+    public boolean shutdown(long timeoutMs) throws InterruptedException {
+        List<T> toRelease = new ArrayList<>();
+        ExecutorService pool;
+        synchronized (this) {
+            running = false;
+            shutDown = true;
+            // Keep the pool so repeated shutdown calls can keep waiting on it
+            pool = workers;
+            for (Stream<T> stream : order) {
+                for (ScheduledFrame<T> frame : stream.queue) toRelease.add(frame.getFrame());
+                stream.queue.clear();
+            }
+            notifyAll();
+        }
+        releaseAll(toRelease);
+        if (pool == null) return true;
+        pool.shutdown();
+        return pool.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized boolean awaitIdle(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (hasQueuedFrames() || inFlight > 0) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) return false;
+            wait(remaining);
+        }
+        return true;
+    }
+
+    public synchronized StreamStats getStats(String streamId) {
+        Stream<T> stream = streams.get(streamId);
+        return stream == null ? null : stream.snapshot(nanoClock.getAsLong());
+    }
+
+    public synchronized List<StreamStats> getAllStats() {
+        long now = nanoClock.getAsLong();
+        List<StreamStats> stats = new ArrayList<>(order.size());
+        for (Stream<T> stream : order) stats.add(stream.snapshot(now));
+        return Collections.unmodifiableList(stats);
+    }
+
+    private void workerLoop() {
+        while (true) {
+            synchronized (this) {
+                try {
+                    while (running) {
+                        if (!hasQueuedFrames()) {
+                            wait();
+                            continue;
+                        }
+                        long lingerNanos = batchReadyInNanos(nanoClock.getAsLong());
+                        if (lingerNanos <= 0) break;
+                        TimeUnit.NANOSECONDS.timedWait(this, lingerNanos);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (!running) return;
+                inFlight++;
+            }
+            try {
+                List<ScheduledFrame<T>> batch = pollBatch();
+                if (!batch.isEmpty()) runBatch(batch);
+            } finally {
+                synchronized (this) {
+                    inFlight--;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    // Runs one batch on the calling thread; used by workers and by tests driving the scheduler directly
+    void runBatch(List<ScheduledFrame<T>> batch) {
+        boolean succeeded = false;
+        try {
+            processor.process(batch);
+            succeeded = true;
+        } catch (RuntimeException e) {
+            try {
+                processor.onFailure(batch, e);
+            } catch (RuntimeException handlerError) {
+                handlerError.printStackTrace();
+            }
+        } finally {
+            synchronized (this) {
+                for (ScheduledFrame<T> frame : batch) {
+                    Stream<T> stream = streams.get(frame.getStreamId());
+                    if (stream == null) continue;
+                    if (succeeded) {
+                        stream.processed++;
+                    } else {
+                        stream.failed++;
+                    }
+                }
+            }
+            for (ScheduledFrame<T> frame : batch) release(frame.getFrame());
+        }
+    }
+
+    /**
+     * Takes up to maxBatchSize frames without blocking, or nothing while the batch window is still
+     * open. Expired frames are dropped on the way.
+     * Package-private so tests can schedule deterministically without worker threads.
+     */
+    List<ScheduledFrame<T>> pollBatch() {
+        List<ScheduledFrame<T>> batch = new ArrayList<>();
+        List<T> expired = new ArrayList<>();
+        synchronized (this) {
+            int streamCount = order.size();
+            if (streamCount == 0) return batch;
+            long now = nanoClock.getAsLong();
+            if (batchReadyInNanos(now) > 0) return batch;
+            boolean tookAny = true;
+            while (batch.size() < maxBatchSize && tookAny) {
+                tookAny = false;
+                for (int i = 0; i < streamCount && batch.size() < maxBatchSize; i++) {
+                    Stream<T> stream = order.get((cursor + i) % streamCount);
+                    ScheduledFrame<T> frame = stream.pollFresh(now, expired);
+                    if (frame != null) {
+                        batch.add(frame);
+                        tookAny = true;
+                    }
+                }
+            }
+            // Rotate the starting stream so a full batch doesn't always favour the first ones
+            cursor = (cursor + 1) % streamCount;
+        }
+        releaseAll(expired);
+        return batch;
+    }
+
+    // How long to keep lingering for more frames; 0 when a batch should be taken now
+    private long batchReadyInNanos(long now) {
+        if (batchWindowNanos == 0) return 0;
+        int queued = 0;
+        boolean everyStreamQueued = true;
+        long oldest = Long.MAX_VALUE;
+        for (Stream<T> stream : order) {
+            ScheduledFrame<T> head = stream.queue.peekFirst();
+            if (head == null) {
+                everyStreamQueued = false;
+                continue;
+            }
+            queued += stream.queue.size();
+            oldest = Math.min(oldest, head.getEnqueuedNanos());
+        }
+        if (queued == 0 || queued >= maxBatchSize || everyStreamQueued) return 0;
+        return Math.max(0, batchWindowNanos - (now - oldest));
+    }
+
+    private boolean hasQueuedFrames() {
+        for (Stream<T> stream : order) {
+            if (!stream.queue.isEmpty()) return true;
+        }
+        return false;
+    }
+
+    private void releaseAll(List<T> frames) {
+        for (T frame : frames) release(frame);
+    }
+
+    private void release(T frame) {
+        if (releaser == null || frame == null) return;
+        try {
+            releaser.release(frame);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static final class Builder<T> {
+        private final BatchProcessor<T> processor;
+        private FrameReleaser<T> releaser;
+        private int workerCount = 1;
+        private int maxBatchSize = 4;
+        private long batchWindowMillis = 0;
+        private LongSupplier nanoClock = System::nanoTime;
+
+        public Builder(BatchProcessor<T> processor) {
+            if (processor == null) throw new IllegalArgumentException("processor must not be null");
+            this.processor = processor;
+        }
+
+        public Builder<T> setFrameReleaser(FrameReleaser<T> releaser) {
+            this.releaser = releaser;
+            return this;
+        }
+
+        public Builder<T> setWorkerCount(int workerCount) {
+            if (workerCount < 1) throw new IllegalArgumentException("workerCount must be >= 1");
+            this.workerCount = workerCount;
+            return this;
+        }
+
+        public Builder<T> setMaxBatchSize(int maxBatchSize) {
+            if (maxBatchSize < 1) throw new IllegalArgumentException("maxBatchSize must be >= 1");
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        // How long an idle worker may wait for other streams to fill a batch; 0 takes frames at once
+        public Builder<T> setBatchWindowMillis(long batchWindowMillis) {
+            if (batchWindowMillis < 0) throw new IllegalArgumentException("batchWindowMillis must be >= 0");
+            this.batchWindowMillis = batchWindowMillis;
+            return this;
+        }
+
+        // Injectable clock so tests can exercise latency caps and fps without sleeping
+        public Builder<T> setNanoClock(LongSupplier nanoClock) {
+            this.nanoClock = nanoClock;
+            return this;
+        }
+
+        public InferenceScheduler<T> build() {
+            return new InferenceScheduler<>(this);
+        }
+    }
+
+    // A frame waiting in (or taken from) a stream queue
+    public static final class ScheduledFrame<T> {
+        private final String streamId;
+        private final T frame;
+        private final long enqueuedNanos;
+
+        ScheduledFrame(String streamId, T frame, long enqueuedNanos) {
+            this.streamId = streamId;
+            this.frame = frame;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+
+        public String getStreamId() { return streamId; }
+        public T getFrame() { return frame; }
+        public long getEnqueuedNanos() { return enqueuedNanos; }
+    }
+
+    // Per-stream queue and counters, guarded by the scheduler's lock
+    private static final class Stream<T> {
+        final String id;
+        final int maxQueueDepth;
+        final long maxLatencyNanos;
+        final ArrayDeque<ScheduledFrame<T>> queue = new ArrayDeque<>();
+        final ArrayDeque<Long> arrivals = new ArrayDeque<>();
+        long submitted;
+        long skipped;
+        long processed;
+        long failed;
+        long dropped;
+        long expired;
+
+        Stream(String id, int maxQueueDepth, long maxLatencyNanos) {
+            this.id = id;
+            this.maxQueueDepth = maxQueueDepth;
+            this.maxLatencyNanos = maxLatencyNanos;
+        }
+
+        void recordArrival(long now) {
+            arrivals.addLast(now);
+            trimArrivals(now);
+        }
+
+        void trimArrivals(long now) {
+            while (!arrivals.isEmpty() && now - arrivals.peekFirst() > FPS_WINDOW_NANOS) {
+                arrivals.pollFirst();
+            }
+        }
+
+        ScheduledFrame<T> pollFresh(long now, List<T> expiredOut) {
+            ScheduledFrame<T> frame;
+            while ((frame = queue.pollFirst()) != null) {
+                if (now - frame.getEnqueuedNanos() <= maxLatencyNanos) return frame;
+                expired++;
+                expiredOut.add(frame.getFrame());
+            }
+            return null;
+        }
+
+        StreamStats snapshot(long now) {
+            trimArrivals(now);
+            return new StreamStats(id, arrivals.size(), queue.size(), submitted, skipped, processed,
+                    failed, dropped, expired);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.dutstudenttracker;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cheap admission stage in front of face detection.
+ *
+ * Each frame is reduced to a small grid of average luma values read straight from the Y plane
+ * (no Bitmap, no copy). A frame is admitted when enough cells changed compared with the previous
+ * frame or with the reference (the last frame that actually reached detection, which also catches
+ * slow drift), and otherwise skipped. A refresh is forced when nothing was admitted for
+ * maxSkipMillis so a still student is re-checked.
+ *
+ * An admitted frame only becomes the reference once markProcessed() is called for it. If the
+ * scheduler drops or expires it, later frames are still compared against the older reference,
+ * so the motion it carried is not lost. The cost is that, while an admitted frame waits in the
+ * queue, similar frames behind it are admitted too.
+ *
+ * Pure Java; one instance per stream.
+ */
+public class MotionGate {
+
+    // Admitted frames remembered until they are processed; older ones are overwritten
+    private static final int PENDING_SLOTS = 8;
+
+    private final int gridWidth;
+    private final int gridHeight;
+    private final int samplesPerCell;
+    private final int cellDeltaThreshold;
+    private final double minChangedFraction;
+    private final long maxSkipNanos;
+
+    // Signatures are reused between frames to avoid allocating on the camera thread
+    private int[] current;
+    private int[] previous;
+    private final int[] reference;
+    private boolean hasPrevious = false;
+    private boolean hasReference = false;
+    private long referenceNanos;
+    private long lastAdmittedNanos;
+
+    private final int[][] pendingSignatures;
+    private final long[] pendingNanos = new long[PENDING_SLOTS];
+    private final boolean[] pendingValid = new boolean[PENDING_SLOTS];
+    private int nextPending = 0;
+
+    private long admittedCount = 0;
+    private long skippedCount = 0;
+    private long forcedRefreshCount = 0;
+
+    private MotionGate(Builder builder) {
+        this.gridWidth = builder.gridWidth;
+        this.gridHeight = builder.gridHeight;
+        this.samplesPerCell = builder.samplesPerCell;
+        this.cellDeltaThreshold = builder.cellDeltaThreshold;
+        this.minChangedFraction = builder.minChangedFraction;
+        this.maxSkipNanos = TimeUnit.MILLISECONDS.toNanos(builder.maxSkipMillis);
+
+        int cells = gridWidth * gridHeight;
+        current = new int[cells];
+        previous = new int[cells];
+        reference = new int[cells];
+        pendingSignatures = new int[PENDING_SLOTS][cells];
+    }
+
+    /**
+     * Decides whether a frame should go on to face detection.
+     * The buffer's position and limit are left untouched so it can still be converted afterwards.
+     */
+    public synchronized boolean admit(ByteBuffer yPlane, int width, int height,
+                                      int rowStride, int pixelStride, long timestampNanos) {
+        computeSignature(yPlane, width, height, rowStride, pixelStride, current);
+
+        boolean admit;
+        boolean forced = false;
+        if (!hasReference) {
+            admit = true;
+        } else if (hasChanged(current, reference) || (hasPrevious && hasChanged(current, previous))) {
+            admit = true;
+        } else if (timestampNanos - lastAdmittedNanos >= maxSkipNanos) {
+            admit = true;
+            forced = true;
+        } else {
+            admit = false;
+        }
+
+        if (admit) {
+            System.arraycopy(current, 0, pendingSignatures[nextPending], 0, current.length);
+            pendingNanos[nextPending] = timestampNanos;
+            pendingValid[nextPending] = true;
+            nextPending = (nextPending + 1) % PENDING_SLOTS;
+            lastAdmittedNanos = timestampNanos;
+            admittedCount++;
+            if (forced) forcedRefreshCount++;
+        } else {
+            skippedCount++;
+        }
+
+        int[] swap = previous;
+        previous = current;
+        current = swap;
+        hasPrevious = true;
+        return admit;
+    }
+
+    /**
+     * Reports that the admitted frame with this timestamp went through detection, making it the
+     * new reference. Returns false if the frame is unknown or older than the current reference.
+     */
+    public synchronized boolean markProcessed(long timestampNanos) {
+        int slot = -1;
+        for (int i = 0; i < PENDING_SLOTS; i++) {
+            if (pendingValid[i] && pendingNanos[i] == timestampNanos) {
+                slot = i;
+                break;
+            }
+        }
+        if (slot < 0) return false;
+
+        boolean newer = !hasReference || timestampNanos >= referenceNanos;
+        if (newer) {
+            System.arraycopy(pendingSignatures[slot], 0, reference, 0, reference.length);
+            referenceNanos = timestampNanos;
+            hasReference = true;
+        }
+        // Anything admitted before this frame can no longer become the reference
+        for (int i = 0; i < PENDING_SLOTS; i++) {
+            if (pendingValid[i] && pendingNanos[i] <= timestampNanos) pendingValid[i] = false;
+        }
+        return newer;
+    }
+
+    // Forget history so the next frame is admitted (e.g. after the camera was rebound)
+    public synchronized void reset() {
+        hasPrevious = false;
+        hasReference = false;
+        for (int i = 0; i < PENDING_SLOTS; i++) pendingValid[i] = false;
+    }
+
+    public synchronized long getAdmittedCount() {
+        return admittedCount;
+    }
+
+    public synchronized long getSkippedCount() {
+        return skippedCount;
+    }
+
+    // Admitted frames that only passed because of the periodic refresh
+    public synchronized long getForcedRefreshCount() {
+        return forcedRefreshCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "admitted=" + admittedCount + " skipped=" + skippedCount + " forced=" + forcedRefreshCount;
+    }
+
+    // Average luma of each grid cell, sampled on a sparse lattice inside the cell
+    private void computeSignature(ByteBuffer yPlane, int width, int height,
+                                  int rowStride, int pixelStride, int[] out) {
+        for (int gy = 0; gy < gridHeight; gy++) {
+            int y0 = gy * height / gridHeight;
+            int y1 = (gy + 1) * height / gridHeight;
+            int stepY = Math.max(1, (y1 - y0) / samplesPerCell);
+
+            for (int gx = 0; gx < gridWidth; gx++) {
+                int x0 = gx * width / gridWidth;
+                int x1 = (gx + 1) * width / gridWidth;
+                int stepX = Math.max(1, (x1 - x0) / samplesPerCell);
+
+                int sum = 0;
+                int count = 0;
+                for (int y = y0; y < y1; y += stepY) {
+                    int rowOffset = y * rowStride;
+                    for (int x = x0; x < x1; x += stepX) {
+                        sum += yPlane.get(rowOffset + x * pixelStride) & 0xFF;
+                        count++;
+                    }
+                }
+                out[gy * gridWidth + gx] = count == 0 ? 0 : sum / count;
+            }
+        }
+    }
+
+    private boolean hasChanged(int[] a, int[] b) {
+        int changed = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (Math.abs(a[i] - b[i]) > cellDeltaThreshold) changed++;
+        }
+        return changed > 0 && changed >= minChangedFraction * a.length;
+    }
+
+    public static final class Builder {
+        private int gridWidth = 16;
+        private int gridHeight = 12;
+        private int samplesPerCell = 4;
+        private int cellDeltaThreshold = 12;
+        private double minChangedFraction = 0.02;
+        private long maxSkipMillis = 1000;
+
+        // Resolution of the luma signature; 16x12 is enough to notice a person moving
+        public Builder setGridSize(int gridWidth, int gridHeight) {
+            if (gridWidth < 1 || gridHeight < 1) throw new IllegalArgumentException("grid size must be >= 1");
+            this.gridWidth = gridWidth;
+            this.gridHeight = gridHeight;
+            return this;
+        }
+
+        // Samples taken per cell along each axis
+        public Builder setSamplesPerCell(int samplesPerCell) {
+            if (samplesPerCell < 1) throw new IllegalArgumentException("samplesPerCell must be >= 1");
+            this.samplesPerCell = samplesPerCell;
+            return this;
+        }
+
+        // Average luma difference (0-255) for a cell to count as changed; keeps sensor noise out
+        public Builder setCellDeltaThreshold(int cellDeltaThreshold) {
+            if (cellDeltaThreshold < 0 || cellDeltaThreshold > 255) {
+                throw new IllegalArgumentException("cellDeltaThreshold must be in [0, 255]");
+            }
+            this.cellDeltaThreshold = cellDeltaThreshold;
+            return this;
+        }
+
+        // Fraction of cells that must change for the frame to be admitted
+        public Builder setMinChangedFraction(double minChangedFraction) {
+            if (minChangedFraction < 0 || minChangedFraction > 1) {
+                throw new IllegalArgumentException("minChangedFraction must be in [0, 1]");
+            }
+            this.minChangedFraction = minChangedFraction;
+            return this;
+        }
+
+        // Longest a stream may go without a detection pass, even if nothing moved
+        public Builder setMaxSkipMillis(long maxSkipMillis) {
+            if (maxSkipMillis < 0) throw new IllegalArgumentException("maxSkipMillis must be >= 0");
+            this.maxSkipMillis = maxSkipMillis;
+            return this;
+        }
+
+        public MotionGate build() {
+            return new MotionGate(this);
+        }
+    }
+}
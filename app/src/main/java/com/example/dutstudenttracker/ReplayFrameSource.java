@@ -0,0 +1,63 @@
+package com.example.dutstudenttracker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Replays a fixed list of frames at a steady rate; stand-in for a real camera in tests and demos
+public class ReplayFrameSource<T> implements FrameSource<T> {
+
+    private final String id;
+    private final List<T> frames;
+    private final int fps;
+    private final boolean loop;
+    private ScheduledExecutorService timer;
+    private int next = 0;
+
+    public ReplayFrameSource(String id, List<T> frames, int fps, boolean loop) {
+        if (frames.isEmpty()) throw new IllegalArgumentException("frames must not be empty");
+        if (fps < 1) throw new IllegalArgumentException("fps must be >= 1");
+        this.id = id;
+        this.frames = new ArrayList<>(frames);
+        this.fps = fps;
+        this.loop = loop;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public synchronized void start(InferenceScheduler<T> scheduler) {
+        if (timer != null) return;
+        timer = Executors.newSingleThreadScheduledExecutor();
+        long periodMicros = TimeUnit.SECONDS.toMicros(1) / fps;
+        timer.scheduleAtFixedRate(() -> emitNext(scheduler), 0, periodMicros, TimeUnit.MICROSECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+    }
+
+    private void emitNext(InferenceScheduler<T> scheduler) {
+        T frame;
+        synchronized (this) {
+            if (next >= frames.size()) {
+                if (!loop) {
+                    stop();
+                    return;
+                }
+                next = 0;
+            }
+            frame = frames.get(next++);
+        }
+        scheduler.submit(id, frame);
+    }
+}
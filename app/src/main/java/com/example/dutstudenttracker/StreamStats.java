@@ -0,0 +1,57 @@
+package com.example.dutstudenttracker;
+
+// Point-in-time counters for one stream of the InferenceScheduler
+public final class StreamStats {
+
+    private final String streamId;
+    private final double fps;
+    private final int queueDepth;
+    private final long submitted;
+    private final long skipped;
+    private final long processed;
+    private final long failed;
+    private final long dropped;
+    private final long expired;
+
+    StreamStats(String streamId, double fps, int queueDepth,
+                long submitted, long skipped, long processed, long failed, long dropped, long expired) {
+        this.streamId = streamId;
+        this.fps = fps;
+        this.queueDepth = queueDepth;
+        this.submitted = submitted;
+        this.skipped = skipped;
+        this.processed = processed;
+        this.failed = failed;
+        this.dropped = dropped;
+        this.expired = expired;
+    }
+
+    public String getStreamId() { return streamId; }
+
+    // Frames the source delivered during the last second, whether queued or skipped
+    public double getFps() { return fps; }
+
+    public int getQueueDepth() { return queueDepth; }
+    public long getSubmitted() { return submitted; }
+
+    // Frames the source rejected before queueing, e.g. by a MotionGate
+    public long getSkipped() { return skipped; }
+
+    public long getProcessed() { return processed; }
+
+    // Frames whose batch threw in the processor
+    public long getFailed() { return failed; }
+
+    // Frames evicted because the stream's queue was full
+    public long getDropped() { return dropped; }
+
+    // Frames discarded because they waited longer than the stream's latency cap
+    public long getExpired() { return expired; }
+
+    @Override
+    public String toString() {
+        return streamId + ": fps=" + fps + " queue=" + queueDepth + " submitted=" + submitted
+                + " skipped=" + skipped + " processed=" + processed + " failed=" + failed
+                + " dropped=" + dropped + " expired=" + expired;
+    }
+}
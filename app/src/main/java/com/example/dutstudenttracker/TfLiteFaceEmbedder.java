@@ -3,6 +3,7 @@ package com.example.dutstudenttracker;
 import android.content.Context;
 import android.content.res.AssetFileDescriptor;
 import android.graphics.Bitmap;
+import android.util.Log;
 
 import org.tensorflow.lite.Interpreter;
 
@@ -12,16 +13,76 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.List;
 
 public class TfLiteFaceEmbedder {
 
     private static final int INPUT_SIZE = 160;    // FaceNet input size 160x160
     private static final int EMBEDDING_SIZE = 128; // FaceNet output size
 
+    // Single-face interpreter with the model's own [1,160,160,3] input, exactly as before batching
     private Interpreter tflite;
+    // Second interpreter on the same mapped model, resized once to [batchCapacity,...]; null if the
+    // model cannot batch. Only full chunks use it, so no run ever pays for empty slots.
+    private Interpreter batchTflite;
+    private final int batchCapacity;
+    private final ByteBuffer singleInput;
+    private final float[][] singleOutput = new float[1][EMBEDDING_SIZE];
+    private final ByteBuffer batchInput;
+    private final float[][] batchOutput;
 
     public TfLiteFaceEmbedder(Context context, String modelFileName) throws IOException {
-        tflite = new Interpreter(loadModelFile(context, modelFileName));
+        this(context, modelFileName, 1);
+    }
+
+    public TfLiteFaceEmbedder(Context context, String modelFileName, int maxBatchSize) throws IOException {
+        MappedByteBuffer model = loadModelFile(context, modelFileName);
+        tflite = new Interpreter(model);
+        batchTflite = createBatchInterpreter(model, maxBatchSize);
+        batchCapacity = batchTflite == null ? 1 : maxBatchSize;
+
+        singleInput = allocateInput(1);
+        batchInput = batchTflite == null ? null : allocateInput(batchCapacity);
+        batchOutput = batchTflite == null ? null : new float[batchCapacity][EMBEDDING_SIZE];
+    }
+
+    // Models exported with a static batch dimension reject the resize; then every face runs alone
+    private Interpreter createBatchInterpreter(MappedByteBuffer model, int maxBatchSize) {
+        if (maxBatchSize <= 1) return null;
+        Interpreter interpreter = new Interpreter(model);
+        try {
+            interpreter.resizeInput(0, new int[]{maxBatchSize, INPUT_SIZE, INPUT_SIZE, 3});
+            interpreter.allocateTensors();
+            int[] outputShape = interpreter.getOutputTensor(0).shape();
+            if (outputShape.length == 2 && outputShape[0] == maxBatchSize) return interpreter;
+            Log.w("TfLiteFaceEmbedder", "Model output does not follow the batch size, embedding one face per run");
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            Log.w("TfLiteFaceEmbedder", "Model does not support batching, embedding one face per run", e);
+        }
+        interpreter.close();
+        return null;
+    }
+
+    private static ByteBuffer allocateInput(int faces) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(faces * INPUT_SIZE * INPUT_SIZE * 3 * 4);
+        buffer.order(ByteOrder.nativeOrder());
+        return buffer;
+    }
+
+    /**
+     * Splits faceCount faces into interpreter runs: full chunks of batchCapacity go to the batched
+     * interpreter, the remainder runs one face at a time. A single face is therefore always one
+     * [1,...] run, the same cost as before batching.
+     */
+    static int[] planRuns(int faceCount, int batchCapacity) {
+        int fullChunks = batchCapacity > 1 ? faceCount / batchCapacity : 0;
+        int singles = faceCount - fullChunks * batchCapacity;
+        int[] runs = new int[fullChunks + singles];
+        for (int i = 0; i < runs.length; i++) {
+            runs[i] = i < fullChunks ? batchCapacity : 1;
+        }
+        return runs;
     }
 
     // Load TFLite model from assets
@@ -34,14 +95,10 @@ public class TfLiteFaceEmbedder {
         return fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
     }
 
-    // Preprocess Bitmap -> ByteBuffer to feed into model
-    private ByteBuffer preprocessBitmap(Bitmap bitmap) {
+    // Preprocess Bitmap and append it to the ByteBuffer fed into the model
+    private void preprocessBitmap(Bitmap bitmap, ByteBuffer imgData) {
         Bitmap resizedBitmap = Bitmap.createScaledBitmap(bitmap, INPUT_SIZE, INPUT_SIZE, true);
 
-        ByteBuffer imgData = ByteBuffer.allocateDirect(1 * INPUT_SIZE * INPUT_SIZE * 3 * 4);
-        imgData.order(ByteOrder.nativeOrder());
-        imgData.rewind();
-
         int[] intValues = new int[INPUT_SIZE * INPUT_SIZE];
         resizedBitmap.getPixels(intValues, 0, INPUT_SIZE, 0, 0, INPUT_SIZE, INPUT_SIZE);
 
@@ -55,17 +112,38 @@ public class TfLiteFaceEmbedder {
             imgData.putFloat((g - 127.5f) / 128.0f);
             imgData.putFloat((b - 127.5f) / 128.0f);
         }
-        return imgData;
     }
 
     // Run inference on a face Bitmap and get the embedding vector
     public float[] getFaceEmbedding(Bitmap faceBitmap) {
-        ByteBuffer input = preprocessBitmap(faceBitmap);
-
-        float[][] output = new float[1][EMBEDDING_SIZE];
-        tflite.run(input, output);
+        return getFaceEmbeddings(Collections.singletonList(faceBitmap))[0];
+    }
 
-        return l2Normalize(output[0]);
+    // Embed faces collected from several frames/streams (see planRuns for how they are split).
+    // Synchronized because the interpreters and buffers are shared by the scheduler's worker pool.
+    public synchronized float[][] getFaceEmbeddings(List<Bitmap> faceBitmaps) {
+        float[][] embeddings = new float[faceBitmaps.size()][];
+
+        int offset = 0;
+        for (int runSize : planRuns(faceBitmaps.size(), batchCapacity)) {
+            boolean batched = runSize > 1;
+            ByteBuffer input = batched ? batchInput : singleInput;
+            float[][] output = batched ? batchOutput : singleOutput;
+
+            input.rewind();
+            for (int i = 0; i < runSize; i++) {
+                preprocessBitmap(faceBitmaps.get(offset + i), input);
+            }
+            input.rewind();
+
+            (batched ? batchTflite : tflite).run(input, output);
+
+            for (int i = 0; i < runSize; i++) {
+                embeddings[offset + i] = l2Normalize(output[i]);
+            }
+            offset += runSize;
+        }
+        return embeddings;
     }
 
     // L2 normalize the embedding for consistency
@@ -83,10 +161,14 @@ public class TfLiteFaceEmbedder {
     }
 
     // Close interpreter resources when done
-    public void close() {
+    public synchronized void close() {
         if (tflite != null) {
             tflite.close();
             tflite = null;
         }
+        if (batchTflite != null) {
+            batchTflite.close();
+            batchTflite = null;
+        }
     }
 }
@@ -0,0 +1,350 @@
+package com.example.dutstudenttracker;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives InferenceScheduler with synthetic streams of integer "frames".
+ */
+public class InferenceSchedulerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final List<Integer> released = new CopyOnWriteArrayList<>();
+
+    private InferenceScheduler<Integer> newScheduler(InferenceScheduler.BatchProcessor<Integer> processor,
+                                                     int maxBatchSize) {
+        return new InferenceScheduler.Builder<>(processor)
+                .setFrameReleaser(released::add)
+                .setMaxBatchSize(maxBatchSize)
+                .setNanoClock(clock::get)
+                .build();
+    }
+
+    private static List<String> streamIds(List<InferenceScheduler.ScheduledFrame<Integer>> batch) {
+        List<String> ids = new ArrayList<>();
+        for (InferenceScheduler.ScheduledFrame<Integer> frame : batch) ids.add(frame.getStreamId());
+        return ids;
+    }
+
+    @Test
+    public void busyStreamDoesNotStarveOthers() {
+        InferenceScheduler<Integer> scheduler = newScheduler(batch -> { }, 3);
+        scheduler.registerStream("busy", 10, 1000);
+        scheduler.registerStream("quiet1", 10, 1000);
+        scheduler.registerStream("quiet2", 10, 1000);
+
+        for (int i = 0; i < 10; i++) scheduler.submit("busy", i);
+        scheduler.submit("quiet1", 100);
+        scheduler.submit("quiet2", 200);
+
+        List<InferenceScheduler.ScheduledFrame<Integer>> batch = scheduler.pollBatch();
+        assertEquals(Arrays.asList("busy", "quiet1", "quiet2"), streamIds(batch));
+
+        // Once the quiet streams are empty the busy one gets the whole batch
+        batch = scheduler.pollBatch();
+        assertEquals(Arrays.asList("busy", "busy", "busy"), streamIds(batch));
+    }
+
+    @Test
+    public void startingStreamRotatesBetweenBatches() {
+        InferenceScheduler<Integer> scheduler = newScheduler(batch -> { }, 1);
+        scheduler.registerStream("a", 10, 1000);
+        scheduler.registerStream("b", 10, 1000);
+        for (int i = 0; i < 3; i++) {
+            scheduler.submit("a", i);
+            scheduler.submit("b", 10 + i);
+        }
+
+        List<String> served = new ArrayList<>();
+        for (int i = 0; i < 4; i++) served.addAll(streamIds(scheduler.pollBatch()));
+        assertEquals(Arrays.asList("a", "b", "a", "b"), served);
+    }
+
+    @Test
+    public void overflowDropsOldestAndReleasesIt() {
+        InferenceScheduler<Integer> scheduler = newScheduler(batch -> { }, 4);
+        scheduler.registerStream("cam", 2, 1000);
+
+        scheduler.submit("cam", 1);
+        scheduler.submit("cam", 2);
+        scheduler.submit("cam", 3);
+
+        assertEquals(Collections.singletonList(1), released);
+        StreamStats stats = scheduler.getStats("cam");
+        assertEquals(2, stats.getQueueDepth());
+        assertEquals(3, stats.getSubmitted());
+        assertEquals(1, stats.getDropped());
+
+        List<InferenceScheduler.ScheduledFrame<Integer>> batch = scheduler.pollBatch();
+        assertEquals(2, batch.size());
+        assertEquals(Integer.valueOf(2), batch.get(0).getFrame());
+        assertEquals(Integer.valueOf(3), batch.get(1).getFrame());
+    }
+
+    @Test
+    public void framesOlderThanLatencyCapAreExpired() {
+        InferenceScheduler<Integer> scheduler = newScheduler(batch -> { }, 4);
+        scheduler.registerStream("slow", 10, 100);
+        scheduler.registerStream("fast", 10, 1000);
+
+        scheduler.submit("slow", 1);
+        scheduler.submit("fast", 2);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(200));
+        scheduler.submit("slow", 3);
+
+        List<InferenceScheduler.ScheduledFrame<Integer>> batch = scheduler.pollBatch();
+        List<Integer> frames = new ArrayList<>();
+        for (InferenceScheduler.ScheduledFrame<Integer> frame : batch) frames.add(frame.getFrame());
+        assertEquals(Arrays.asList(3, 2), frames);
+        assertEquals(Collections.singletonList(1), released);
+        assertEquals(1, scheduler.getStats("slow").getExpired());
+        assertEquals(0, scheduler.getStats("fast").getExpired());
+    }
+
+    @Test
+    public void fpsCountsArrivalsInLastSecond() {
+        InferenceScheduler<Integer> scheduler = newScheduler(batch -> { }, 4);
+        scheduler.registerStream("cam", 100, 10_000);
+
+        // 30 frames spread over one second
+        for (int i = 0; i < 30; i++) {
+            scheduler.submit("cam", i);
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(33));
+        }
+        assertEquals(30.0, scheduler.getStats("cam").getFps(), 0.0);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertEquals(0.0, scheduler.getStats("cam").getFps(), 0.0);
+    }
+
+    @Test
+    public void skippedFramesCountTowardsFpsButAreNotQueued() {
+        InferenceScheduler<Integer> scheduler = newScheduler(batch -> { }, 4);
+        scheduler.registerStream("cam", 100, 10_000);
+
+        // A gate in front of the scheduler lets only every third frame through
+        for (int i = 0; i < 30; i++) {
+            if (i % 3 == 0) {
+                scheduler.submit("cam", i);
+            } else {
+                scheduler.recordSkipped("cam");
+            }
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(33));
+        }
+
+        StreamStats stats = scheduler.getStats("cam");
+        assertEquals(30.0, stats.getFps(), 0.0);
+        assertEquals(10, stats.getSubmitted());
+        assertEquals(20, stats.getSkipped());
+        assertEquals(10, stats.getQueueDepth());
+    }
+
+    @Test
+    public void failedBatchIsReportedAndNotCountedAsProcessed() {
+        List<RuntimeException> errors = new ArrayList<>();
+        InferenceScheduler<Integer> scheduler = newScheduler(new InferenceScheduler.BatchProcessor<Integer>() {
+            @Override
+            public void process(List<InferenceScheduler.ScheduledFrame<Integer>> batch) {
+                throw new IllegalStateException("model crashed");
+            }
+
+            @Override
+            public void onFailure(List<InferenceScheduler.ScheduledFrame<Integer>> batch, RuntimeException error) {
+                errors.add(error);
+            }
+        }, 4);
+        scheduler.registerStream("cam", 4, 1000);
+        scheduler.submit("cam", 7);
+
+        scheduler.runBatch(scheduler.pollBatch());
+
+        assertEquals(1, errors.size());
+        assertEquals("model crashed", errors.get(0).getMessage());
+        assertEquals(Collections.singletonList(7), released);
+        assertEquals(0, scheduler.getStats("cam").getProcessed());
+        assertEquals(1, scheduler.getStats("cam").getFailed());
+    }
+
+    @Test
+    public void unknownStreamFrameIsReleasedImmediately() {
+        InferenceScheduler<Integer> scheduler = newScheduler(batch -> { }, 4);
+        scheduler.submit("missing", 5);
+        assertEquals(Collections.singletonList(5), released);
+        assertNull(scheduler.getStats("missing"));
+    }
+
+    @Test
+    public void submitAfterShutdownReleasesFrame() throws InterruptedException {
+        InferenceScheduler<Integer> scheduler = newScheduler(batch -> { }, 4);
+        scheduler.registerStream("cam", 4, 1000);
+        scheduler.submit("cam", 1);
+
+        assertTrue(scheduler.shutdown(1000));
+        assertEquals(Collections.singletonList(1), released);
+
+        scheduler.submit("cam", 2);
+        assertEquals(Arrays.asList(1, 2), released);
+        assertEquals(0, scheduler.getStats("cam").getQueueDepth());
+    }
+
+    @Test
+    public void shutdownWaitsForInFlightBatch() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        InferenceScheduler<Integer> scheduler = new InferenceScheduler.Builder<Integer>(batch -> {
+            started.countDown();
+            try {
+                finish.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }).setFrameReleaser(released::add).build();
+        scheduler.registerStream("cam", 4, 60_000);
+        scheduler.start();
+        scheduler.submit("cam", 1);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Batch is still running, so shutdown must report it did not finish in time
+        assertFalse(scheduler.shutdown(50));
+        assertTrue(released.isEmpty());
+
+        finish.countDown();
+        assertTrue(scheduler.shutdown(5000));
+        assertEquals(Collections.singletonList(1), released);
+    }
+
+    private InferenceScheduler<Integer> newWindowedScheduler(long batchWindowMillis) {
+        return new InferenceScheduler.Builder<Integer>(batch -> { })
+                .setFrameReleaser(released::add)
+                .setMaxBatchSize(4)
+                .setBatchWindowMillis(batchWindowMillis)
+                .setNanoClock(clock::get)
+                .build();
+    }
+
+    @Test
+    public void batchWindowWaitsForOtherStreams() {
+        InferenceScheduler<Integer> scheduler = newWindowedScheduler(20);
+        scheduler.registerStream("a", 10, 1000);
+        scheduler.registerStream("b", 10, 1000);
+        scheduler.registerStream("c", 10, 1000);
+
+        scheduler.submit("a", 1);
+        assertTrue(scheduler.pollBatch().isEmpty());
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(5));
+        scheduler.submit("b", 2);
+        assertTrue(scheduler.pollBatch().isEmpty());
+
+        // Window is measured from the oldest queued frame
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(15));
+        assertEquals(Arrays.asList("a", "b"), streamIds(scheduler.pollBatch()));
+    }
+
+    @Test
+    public void batchWindowClosesOnceEveryStreamContributed() {
+        InferenceScheduler<Integer> scheduler = newWindowedScheduler(20);
+        scheduler.registerStream("a", 10, 1000);
+        scheduler.registerStream("b", 10, 1000);
+
+        scheduler.submit("a", 1);
+        assertTrue(scheduler.pollBatch().isEmpty());
+        scheduler.submit("b", 2);
+        assertEquals(Arrays.asList("a", "b"), streamIds(scheduler.pollBatch()));
+    }
+
+    @Test
+    public void batchWindowNeverDelaysSingleStreamOrFullBatch() {
+        InferenceScheduler<Integer> single = newWindowedScheduler(20);
+        single.registerStream("only", 10, 1000);
+        single.submit("only", 1);
+        assertEquals(1, single.pollBatch().size());
+
+        InferenceScheduler<Integer> busy = newWindowedScheduler(20);
+        busy.registerStream("a", 10, 1000);
+        busy.registerStream("b", 10, 1000);
+        for (int i = 0; i < 4; i++) busy.submit("a", i);
+        assertEquals(4, busy.pollBatch().size());
+    }
+
+    @Test
+    public void idleWorkerBatchesFramesAcrossStreams() throws InterruptedException {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        InferenceScheduler<Integer> scheduler = new InferenceScheduler.Builder<Integer>(
+                batch -> batchSizes.add(batch.size()))
+                .setMaxBatchSize(4)
+                .setBatchWindowMillis(10_000)
+                .build();
+        scheduler.registerStream("a", 10, 60_000);
+        scheduler.registerStream("b", 10, 60_000);
+        scheduler.start();
+
+        scheduler.submit("a", 1);
+        Thread.sleep(50);
+        scheduler.submit("b", 2);
+
+        assertTrue(scheduler.awaitIdle(5000));
+        assertTrue(scheduler.shutdown(5000));
+        assertEquals(Collections.singletonList(2), batchSizes);
+    }
+
+    @Test
+    public void workersProcessSyntheticStreamsConcurrently() throws InterruptedException {
+        List<Integer> processed = new CopyOnWriteArrayList<>();
+        InferenceScheduler<Integer> scheduler = new InferenceScheduler.Builder<Integer>(batch -> {
+            for (InferenceScheduler.ScheduledFrame<Integer> frame : batch) processed.add(frame.getFrame());
+        })
+                .setFrameReleaser(released::add)
+                .setWorkerCount(2)
+                .setMaxBatchSize(4)
+                .build();
+        scheduler.registerStream("a", 1000, 60_000);
+        scheduler.registerStream("b", 1000, 60_000);
+        scheduler.start();
+
+        for (int i = 0; i < 50; i++) {
+            scheduler.submit("a", i);
+            scheduler.submit("b", 1000 + i);
+        }
+
+        assertTrue(scheduler.awaitIdle(5000));
+        assertTrue(scheduler.shutdown(5000));
+
+        assertEquals(100, processed.size());
+        assertEquals(100, released.size());
+        assertEquals(50, scheduler.getStats("a").getProcessed());
+        assertEquals(50, scheduler.getStats("b").getProcessed());
+    }
+
+    @Test
+    public void replaySourceFeedsScheduler() throws InterruptedException {
+        List<Integer> processed = new CopyOnWriteArrayList<>();
+        InferenceScheduler<Integer> scheduler = new InferenceScheduler.Builder<Integer>(batch -> {
+            for (InferenceScheduler.ScheduledFrame<Integer> frame : batch) processed.add(frame.getFrame());
+        }).build();
+        ReplayFrameSource<Integer> source =
+                new ReplayFrameSource<>("replay", Arrays.asList(1, 2, 3, 4, 5), 200, false);
+        scheduler.registerStream(source.getId(), 10, 60_000);
+        scheduler.start();
+
+        source.start(scheduler);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (scheduler.getStats("replay").getSubmitted() < 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(scheduler.awaitIdle(5000));
+        source.stop();
+        assertTrue(scheduler.shutdown(5000));
+
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), processed);
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.dutstudenttracker;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Feeds MotionGate synthetic Y planes.
+ */
+public class MotionGateTest {
+
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 120;
+    private static final long FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(33);
+
+    private long timestamp = 0;
+
+    private static byte[] flat(int luma) {
+        byte[] frame = new byte[WIDTH * HEIGHT];
+        Arrays.fill(frame, (byte) luma);
+        return frame;
+    }
+
+    // Draws a bright square (e.g. a face) on a copy of the frame
+    private static byte[] withSquare(byte[] base, int left, int top, int size, int luma) {
+        byte[] frame = base.clone();
+        for (int y = top; y < top + size; y++) {
+            for (int x = left; x < left + size; x++) {
+                frame[y * WIDTH + x] = (byte) luma;
+            }
+        }
+        return frame;
+    }
+
+    // Admits a frame without the scheduler ever processing it
+    private boolean admitOnly(MotionGate gate, byte[] frame) {
+        timestamp += FRAME_NANOS;
+        return gate.admit(ByteBuffer.wrap(frame), WIDTH, HEIGHT, WIDTH, 1, timestamp);
+    }
+
+    // Admits a frame and, if it passed, reports it as processed right away
+    private boolean admit(MotionGate gate, byte[] frame) {
+        boolean admitted = admitOnly(gate, frame);
+        if (admitted) gate.markProcessed(timestamp);
+        return admitted;
+    }
+
+    private static MotionGate.Builder noRefresh() {
+        return new MotionGate.Builder().setMaxSkipMillis(TimeUnit.HOURS.toMillis(1));
+    }
+
+    @Test
+    public void firstFrameIsAdmitted() {
+        MotionGate gate = noRefresh().build();
+        assertTrue(admit(gate, flat(100)));
+        assertEquals(1, gate.getAdmittedCount());
+        assertEquals(0, gate.getSkippedCount());
+    }
+
+    @Test
+    public void staticSceneIsSkipped() {
+        MotionGate gate = noRefresh().build();
+        byte[] hallway = flat(100);
+        admit(gate, hallway);
+        for (int i = 0; i < 20; i++) {
+            assertFalse(admit(gate, hallway));
+        }
+        assertEquals(1, gate.getAdmittedCount());
+        assertEquals(20, gate.getSkippedCount());
+    }
+
+    @Test
+    public void sensorNoiseBelowThresholdIsSkipped() {
+        MotionGate gate = noRefresh().setCellDeltaThreshold(12).build();
+        Random random = new Random(42);
+        admit(gate, flat(100));
+        for (int i = 0; i < 20; i++) {
+            byte[] noisy = new byte[WIDTH * HEIGHT];
+            for (int p = 0; p < noisy.length; p++) {
+                noisy[p] = (byte) (100 + random.nextInt(11) - 5);
+            }
+            assertFalse(admit(gate, noisy));
+        }
+    }
+
+    @Test
+    public void movingObjectIsAdmitted() {
+        MotionGate gate = noRefresh().build();
+        byte[] hallway = flat(60);
+        admit(gate, hallway);
+        assertFalse(admit(gate, hallway));
+
+        assertTrue(admit(gate, withSquare(hallway, 10, 10, 40, 220)));
+        assertTrue(admit(gate, withSquare(hallway, 60, 10, 40, 220)));
+        // Student stops moving
+        assertFalse(admit(gate, withSquare(hallway, 60, 10, 40, 220)));
+        assertEquals(3, gate.getAdmittedCount());
+        assertEquals(2, gate.getSkippedCount());
+    }
+
+    @Test
+    public void slowDriftIsCaughtAgainstLastAdmittedFrame() {
+        MotionGate gate = noRefresh().setCellDeltaThreshold(12).setMinChangedFraction(0.5).build();
+        admit(gate, flat(100));
+
+        // Each step stays under the threshold, but the accumulated change does not
+        boolean admittedDuringDrift = false;
+        for (int luma = 104; luma <= 140; luma += 4) {
+            admittedDuringDrift |= admit(gate, flat(luma));
+        }
+        assertTrue(admittedDuringDrift);
+    }
+
+    @Test
+    public void periodicRefreshIsForced() {
+        MotionGate gate = new MotionGate.Builder().setMaxSkipMillis(90).build();
+        byte[] still = flat(100);
+        assertTrue(admit(gate, still));   // t=33ms
+        assertFalse(admit(gate, still));  // t=66ms, 33ms since last admit
+        assertFalse(admit(gate, still));  // t=99ms, 66ms since last admit
+        assertTrue(admit(gate, still));   // t=132ms, 99ms since last admit
+        assertEquals(2, gate.getAdmittedCount());
+        assertEquals(1, gate.getForcedRefreshCount());
+    }
+
+    @Test
+    public void rowPaddingAndPixelStrideAreHonoured() {
+        int rowStride = WIDTH * 2 + 16;
+        int pixelStride = 2;
+        MotionGate gate = noRefresh().build();
+
+        byte[] padded = new byte[rowStride * HEIGHT];
+        Arrays.fill(padded, (byte) 80);
+        assertTrue(gate.admit(ByteBuffer.wrap(padded), WIDTH, HEIGHT, rowStride, pixelStride, 1));
+        gate.markProcessed(1);
+
+        // Changing only padding / interleaved bytes must not look like motion
+        byte[] paddingChanged = padded.clone();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                paddingChanged[y * rowStride + x * pixelStride + 1] = (byte) 250;
+            }
+            for (int p = WIDTH * pixelStride; p < rowStride; p++) {
+                paddingChanged[y * rowStride + p] = (byte) 250;
+            }
+        }
+        assertFalse(gate.admit(ByteBuffer.wrap(paddingChanged), WIDTH, HEIGHT, rowStride, pixelStride, 2));
+
+        byte[] lumaChanged = padded.clone();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                lumaChanged[y * rowStride + x * pixelStride] = (byte) 200;
+            }
+        }
+        assertTrue(gate.admit(ByteBuffer.wrap(lumaChanged), WIDTH, HEIGHT, rowStride, pixelStride, 3));
+    }
+
+    @Test
+    public void bufferPositionIsLeftUntouched() {
+        MotionGate gate = noRefresh().build();
+        ByteBuffer buffer = ByteBuffer.wrap(flat(100));
+        admit(gate, flat(100));
+        gate.admit(buffer, WIDTH, HEIGHT, WIDTH, 1, timestamp + FRAME_NANOS);
+        assertEquals(0, buffer.position());
+        assertEquals(WIDTH * HEIGHT, buffer.remaining());
+    }
+
+    @Test
+    public void droppedFrameDoesNotBecomeReference() {
+        MotionGate gate = noRefresh().build();
+        byte[] hallway = flat(60);
+        byte[] student = withSquare(hallway, 60, 10, 40, 220);
+        admit(gate, hallway);
+
+        // The scheduler drops the frame where the student walked in
+        assertTrue(admitOnly(gate, student));
+        // Student now stands still, but nothing showing them was processed yet
+        assertTrue(admitOnly(gate, student));
+        gate.markProcessed(timestamp);
+        assertFalse(admitOnly(gate, student));
+    }
+
+    @Test
+    public void olderFrameProcessedLateDoesNotReplaceReference() {
+        MotionGate gate = noRefresh().build();
+        byte[] hallway = flat(60);
+        byte[] left = withSquare(hallway, 10, 10, 40, 220);
+        byte[] right = withSquare(hallway, 100, 10, 40, 220);
+        admit(gate, hallway);
+
+        assertTrue(admitOnly(gate, left));
+        long leftTimestamp = timestamp;
+        assertTrue(admitOnly(gate, right));
+
+        assertTrue(gate.markProcessed(timestamp));
+        assertFalse(gate.markProcessed(leftTimestamp));
+        assertFalse(admitOnly(gate, right));
+    }
+
+    @Test
+    public void unknownTimestampIsIgnored() {
+        MotionGate gate = noRefresh().build();
+        assertFalse(gate.markProcessed(12345));
+        assertTrue(admitOnly(gate, flat(100)));
+    }
+
+    @Test
+    public void resetAdmitsNextFrame() {
+        MotionGate gate = noRefresh().build();
+        byte[] still = flat(100);
+        admit(gate, still);
+        assertFalse(admit(gate, still));
+        gate.reset();
+        assertTrue(admit(gate, still));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidFractionIsRejected() {
+        new MotionGate.Builder().setMinChangedFraction(1.5);
+    }
+}
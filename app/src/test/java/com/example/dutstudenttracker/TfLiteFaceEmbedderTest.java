@@ -0,0 +1,47 @@
+package com.example.dutstudenttracker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks how faces are split into interpreter runs, so batching never costs more than
+ * embedding each face on its own.
+ */
+public class TfLiteFaceEmbedderTest {
+
+    @Test
+    public void singleFaceIsOneSingleRun() {
+        // Same single [1,160,160,3] run as before batching existed
+        assertArrayEquals(new int[]{1}, TfLiteFaceEmbedder.planRuns(1, 4));
+    }
+
+    @Test
+    public void partialChunkRunsFaceByFace() {
+        assertArrayEquals(new int[]{1, 1, 1}, TfLiteFaceEmbedder.planRuns(3, 4));
+    }
+
+    @Test
+    public void fullChunksAreBatchedAndRemainderRunsAlone() {
+        assertArrayEquals(new int[]{4, 4, 1}, TfLiteFaceEmbedder.planRuns(9, 4));
+    }
+
+    @Test
+    public void noBatchingWhenModelCannotResize() {
+        assertArrayEquals(new int[]{1, 1, 1, 1, 1}, TfLiteFaceEmbedder.planRuns(5, 1));
+    }
+
+    @Test
+    public void noFacesNoRuns() {
+        assertEquals(0, TfLiteFaceEmbedder.planRuns(0, 4).length);
+    }
+
+    @Test
+    public void neverMoreFaceSlotsThanFaces() {
+        for (int faces = 0; faces <= 12; faces++) {
+            int slots = 0;
+            for (int run : TfLiteFaceEmbedder.planRuns(faces, 4)) slots += run;
+            assertEquals(faces, slots);
+        }
+    }
+}